@@ -2,10 +2,13 @@ package org.itnaf.scrollingbhs.controller;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.itnaf.scrollingbhs.model.KeystrokeAggregateSnapshot;
 import org.itnaf.scrollingbhs.model.KeystrokeTimingData;
+import org.itnaf.scrollingbhs.service.KeystrokeAggregateService;
 import org.itnaf.scrollingbhs.service.KeystrokeDataService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -20,11 +23,14 @@ import java.util.Map;
 public class ReportController {
 
     private final KeystrokeDataService keystrokeDataService;
+    private final KeystrokeAggregateService keystrokeAggregateService;
     private final ObjectMapper mapper = new ObjectMapper();
 
     @Autowired
-    public ReportController(KeystrokeDataService keystrokeDataService) {
+    public ReportController(KeystrokeDataService keystrokeDataService,
+                            KeystrokeAggregateService keystrokeAggregateService) {
         this.keystrokeDataService = keystrokeDataService;
+        this.keystrokeAggregateService = keystrokeAggregateService;
     }
 
     @PostMapping("/GetReport")
@@ -66,4 +72,9 @@ public class ReportController {
 
         return ResponseEntity.ok("Report received. Keystroke data fields processed: " + sessionData.size());
     }
+
+    @GetMapping("/GetAggregate")
+    public ResponseEntity<KeystrokeAggregateSnapshot> getAggregate() {
+        return ResponseEntity.ok(keystrokeAggregateService.snapshot());
+    }
 }
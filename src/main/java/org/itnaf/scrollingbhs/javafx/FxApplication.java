@@ -4,14 +4,18 @@ import javafx.application.Application;
 import javafx.application.Platform;
 import javafx.scene.Scene;
 import javafx.scene.control.Label;
+import javafx.scene.control.ScrollPane;
 import javafx.scene.layout.BorderPane;
 import javafx.scene.layout.Pane;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Line;
 import javafx.scene.text.Text;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 import org.itnaf.scrollingbhs.ScrollingBHSApplication;
+import org.itnaf.scrollingbhs.javafx.visualization.KeystrokeHeatmapPane;
 import org.itnaf.scrollingbhs.javafx.visualization.KeystrokeTimelinePane;
+import org.itnaf.scrollingbhs.service.KeystrokeAggregateService;
 import org.itnaf.scrollingbhs.service.KeystrokeDataService;
 import org.springframework.boot.builder.SpringApplicationBuilder;
 import org.springframework.context.ConfigurableApplicationContext;
@@ -21,7 +25,13 @@ public class FxApplication extends Application {
 
     private ConfigurableApplicationContext applicationContext;
     private long timelineDurationSeconds;
+    private int historyMaxSessions;
+    private long heatmapRefreshMillis;
+    private KeystrokeHeatmapPane heatmapPane;
+    public static final double SCENE_WIDTH = 1200.0;
     public static final double LABEL_WIDTH = 150.0;
+    // Width of the time axis; shared by the axis ticks and the timeline bars so they line up.
+    public static final double TIMELINE_WIDTH = SCENE_WIDTH - LABEL_WIDTH - 20;
     public static final double AXIS_HEIGHT = 30.0;
 
     public static void main(String[] args) {
@@ -33,6 +43,8 @@ public class FxApplication extends Application {
         applicationContext = new SpringApplicationBuilder(ScrollingBHSApplication.class).run();
         Environment environment = applicationContext.getBean(Environment.class);
         this.timelineDurationSeconds = environment.getProperty("visualization.timeline.duration-seconds", Long.class, 20L);
+        this.historyMaxSessions = environment.getProperty("visualization.history.max-sessions", Integer.class, 1000);
+        this.heatmapRefreshMillis = environment.getProperty("visualization.aggregate.refresh-millis", Long.class, 1000L);
     }
 
     @Override
@@ -41,9 +53,8 @@ public class FxApplication extends Application {
 
         KeystrokeDataService keystrokeDataService = applicationContext.getBean(KeystrokeDataService.class);
 
-        KeystrokeTimelinePane timelinePane = new KeystrokeTimelinePane(timelineDurationSeconds);
+        KeystrokeTimelinePane timelinePane = new KeystrokeTimelinePane(timelineDurationSeconds, historyMaxSessions);
         timelinePane.setKeystrokeData(keystrokeDataService.sessionDataProperty());
-        timelinePane.setStage(primaryStage);
 
         BorderPane root = new BorderPane();
         root.setCenter(timelinePane);
@@ -51,10 +62,31 @@ public class FxApplication extends Application {
         Pane axisPane = createAxisPane();
         root.setBottom(axisPane);
 
-        Scene scene = new Scene(root, 1200, 260);
+        Scene scene = new Scene(root, SCENE_WIDTH, 600);
 
         primaryStage.setScene(scene);
+        // The heatmap window would otherwise keep the application (and Spring) alive
+        primaryStage.setOnCloseRequest(e -> Platform.exit());
         primaryStage.show();
+
+        showHeatmapStage(primaryStage);
+    }
+
+    private void showHeatmapStage(Stage owner) {
+        KeystrokeAggregateService aggregateService = applicationContext.getBean(KeystrokeAggregateService.class);
+        heatmapPane = new KeystrokeHeatmapPane(aggregateService, Duration.millis(heatmapRefreshMillis));
+
+        ScrollPane scrollPane = new ScrollPane(heatmapPane);
+        scrollPane.setFitToWidth(true);
+        scrollPane.setStyle("-fx-background: #2B2B2B; -fx-background-color: #2B2B2B;");
+
+        Stage heatmapStage = new Stage();
+        heatmapStage.initOwner(owner);
+        heatmapStage.setTitle("Dwell Time Heatmap (all sessions)");
+        heatmapStage.setScene(new Scene(scrollPane, 600, 400));
+        heatmapStage.setOnHidden(e -> heatmapPane.stop());
+        heatmapStage.show();
+        heatmapPane.start();
     }
 
     private Pane createAxisPane() {
@@ -62,19 +94,17 @@ public class FxApplication extends Application {
         axisPane.setPrefHeight(30);
         axisPane.setStyle("-fx-background-color: #2B2B2B;");
 
-        double availableWidth = 1200 - LABEL_WIDTH - 20;
-
         Line axisLine = new Line();
         axisLine.setStroke(Color.WHITE);
         axisLine.setStartX(LABEL_WIDTH);
-        axisLine.setEndX(LABEL_WIDTH + availableWidth);
+        axisLine.setEndX(LABEL_WIDTH + TIMELINE_WIDTH);
         axisLine.setLayoutY(10);
 
         axisPane.getChildren().add(axisLine);
 
         // Add ticks and labels, offset by LABEL_WIDTH to align with the visualization area
         for (int i = 0; i <= timelineDurationSeconds; i++) {
-            double x = LABEL_WIDTH + i * (availableWidth / timelineDurationSeconds);
+            double x = LABEL_WIDTH + i * (TIMELINE_WIDTH / timelineDurationSeconds);
             Line tick = new Line(x, 5, x, 15);
             tick.setStroke(Color.WHITE);
             axisPane.getChildren().add(tick);
@@ -92,6 +122,7 @@ public class FxApplication extends Application {
 
     @Override
     public void stop() {
+        if (heatmapPane != null) heatmapPane.stop();
         applicationContext.close();
         Platform.exit();
     }
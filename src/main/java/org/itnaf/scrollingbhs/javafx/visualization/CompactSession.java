@@ -0,0 +1,149 @@
+package org.itnaf.scrollingbhs.javafx.visualization;
+
+import org.itnaf.scrollingbhs.model.KeystrokeEvent;
+import org.itnaf.scrollingbhs.model.KeystrokeTimingData;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Pre-computed keystroke bars of one session, kept in primitive arrays so a long history holds no
+ * scene-graph nodes. Each bar is one keydown/keyup pair; times are in milliseconds.
+ */
+final class CompactSession {
+
+    private static final int TAB_KEY_CODE = 9;
+
+    final String[] fieldLabels;
+    final int[] barField;
+    final int[] barKeyCode;
+    final int[] barOverlapLevel;
+    /** Press time relative to the field's first keydown; drives the bar's X position. */
+    final long[] barFieldOffset;
+    /** Press time relative to the session's first event; drives playback. */
+    final long[] barSessionOffset;
+    final long[] barDuration;
+    /** Time from the session's first event to its last one. */
+    final long durationMillis;
+
+    private CompactSession(String[] fieldLabels, long durationMillis, int capacity) {
+        this.fieldLabels = fieldLabels;
+        this.durationMillis = durationMillis;
+        barField = new int[capacity];
+        barKeyCode = new int[capacity];
+        barOverlapLevel = new int[capacity];
+        barFieldOffset = new long[capacity];
+        barSessionOffset = new long[capacity];
+        barDuration = new long[capacity];
+    }
+
+    /** Copies the first {@code count} bars into arrays of exactly that length. */
+    private CompactSession(CompactSession source, int count) {
+        this.fieldLabels = source.fieldLabels;
+        this.durationMillis = source.durationMillis;
+        barField = Arrays.copyOf(source.barField, count);
+        barKeyCode = Arrays.copyOf(source.barKeyCode, count);
+        barOverlapLevel = Arrays.copyOf(source.barOverlapLevel, count);
+        barFieldOffset = Arrays.copyOf(source.barFieldOffset, count);
+        barSessionOffset = Arrays.copyOf(source.barSessionOffset, count);
+        barDuration = Arrays.copyOf(source.barDuration, count);
+    }
+
+    private void setBar(int i, int field, int keyCode, int overlapLevel, long fieldOffset, long sessionOffset, long duration) {
+        barField[i] = field;
+        barKeyCode[i] = keyCode;
+        barOverlapLevel[i] = overlapLevel;
+        barFieldOffset[i] = fieldOffset;
+        barSessionOffset[i] = sessionOffset;
+        barDuration[i] = duration;
+    }
+
+    int barCount() {
+        return barField.length;
+    }
+
+    /**
+     * Replays the session's events once to compute every bar's position and overlap level, using
+     * the same rules as the live animation: TAB is skipped, and concurrent keys stack upwards.
+     * Keydowns without a matching keyup become zero-width bars.
+     */
+    static CompactSession of(List<KeystrokeTimingData> sessionData) {
+        long sessionStartTime = sessionData.stream()
+                .flatMap(f -> f.getEvents().stream())
+                .mapToLong(KeystrokeEvent::getTimestamp)
+                .min().orElse(0L);
+        long sessionEndTime = sessionData.stream()
+                .flatMap(f -> f.getEvents().stream())
+                .mapToLong(KeystrokeEvent::getTimestamp)
+                .max().orElse(0L);
+
+        // Ordered field indices, one per distinct target text
+        Map<String, Integer> fieldIndices = new LinkedHashMap<>();
+        for (KeystrokeTimingData fieldData : sessionData) {
+            fieldIndices.putIfAbsent(fieldData.getTargetText(), fieldIndices.size());
+        }
+        String[] fieldLabels = fieldIndices.keySet().stream()
+                .map(text -> text.replace("#", " "))
+                .toArray(String[]::new);
+
+        // Per-field start times (first non-TAB keydown)
+        Map<String, Long> fieldStartTimes = new HashMap<>();
+        for (KeystrokeTimingData fieldData : sessionData) {
+            fieldData.getEvents().stream()
+                    .filter(e -> e.getAction() == 0 && e.getKeyCode() != TAB_KEY_CODE)
+                    .min(Comparator.comparingLong(KeystrokeEvent::getTimestamp))
+                    .ifPresent(e -> fieldStartTimes.put(fieldData.getTargetText(), e.getTimestamp()));
+        }
+
+        // At most one bar per keydown, so the event count bounds the bar count
+        int capacity = sessionData.stream().mapToInt(f -> f.getEvents().size()).sum();
+        CompactSession session = new CompactSession(fieldLabels, sessionEndTime - sessionStartTime, capacity);
+        int count = 0;
+        for (KeystrokeTimingData fieldData : sessionData) {
+            int field = fieldIndices.get(fieldData.getTargetText());
+            long fieldStartTime = fieldStartTimes.getOrDefault(fieldData.getTargetText(), sessionStartTime);
+
+            List<KeystrokeEvent> events = fieldData.getEvents().stream()
+                    .filter(e -> e.getKeyCode() != TAB_KEY_CODE)
+                    .sorted(Comparator.comparingLong(KeystrokeEvent::getTimestamp))
+                    .collect(Collectors.toList());
+
+            Map<Integer, Long> pressTimeMap = new HashMap<>();
+            Map<Integer, Integer> pressLevelMap = new HashMap<>();
+            Set<Integer> currentlyActive = new HashSet<>();
+
+            for (KeystrokeEvent e : events) {
+                if (e.getAction() == 0) { // keydown
+                    pressTimeMap.put(e.getKeyCode(), e.getTimestamp());
+                    pressLevelMap.put(e.getKeyCode(), currentlyActive.size());
+                    currentlyActive.add(e.getKeyCode());
+
+                } else if (e.getAction() == 1) { // keyup
+                    currentlyActive.remove(e.getKeyCode());
+
+                    if (pressTimeMap.containsKey(e.getKeyCode())) {
+                        long press = pressTimeMap.remove(e.getKeyCode());
+                        int level = pressLevelMap.remove(e.getKeyCode());
+                        session.setBar(count++, field, e.getKeyCode(), level, press - fieldStartTime,
+                                press - sessionStartTime, Math.max(0, e.getTimestamp() - press));
+                    }
+                }
+            }
+
+            for (Map.Entry<Integer, Long> entry : pressTimeMap.entrySet()) {
+                long press = entry.getValue();
+                session.setBar(count++, field, entry.getKey(), pressLevelMap.get(entry.getKey()),
+                        press - fieldStartTime, press - sessionStartTime, 0);
+            }
+        }
+
+        return count == capacity ? session : new CompactSession(session, count);
+    }
+}
@@ -0,0 +1,159 @@
+package org.itnaf.scrollingbhs.javafx.visualization;
+
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.geometry.VPos;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import javafx.scene.text.TextAlignment;
+import javafx.util.Duration;
+import org.itnaf.scrollingbhs.model.KeystrokeAggregateSnapshot;
+import org.itnaf.scrollingbhs.service.KeystrokeAggregateService;
+
+import java.util.List;
+
+/**
+ * Heatmap of the cross-session dwell-time histogram: one row per key seen so far, one column per
+ * dwell bucket. Each row is normalized to its own peak so the shape of every key's distribution is
+ * visible regardless of how often the key is typed. The pane polls the aggregate on the FX thread,
+ * which never blocks ingestion.
+ */
+public class KeystrokeHeatmapPane extends Pane {
+
+    private static final double KEY_LABEL_WIDTH = 70.0;
+    private static final double HEADER_HEIGHT = 24.0;
+    private static final double ROW_HEIGHT = 18.0;
+    private static final Color BACKGROUND = Color.web("#2B2B2B");
+    private static final Color HOT = Color.web("#FF8C00");
+    private static final Color KEY_LABEL = Color.web("#AAAAAA");
+
+    private final KeystrokeAggregateService aggregateService;
+    private final Canvas canvas = new Canvas();
+    private final Timeline refresher;
+    private List<KeystrokeAggregateSnapshot.DwellRow> rows = List.of();
+    private long renderedSessions = -1;
+
+    public KeystrokeHeatmapPane(KeystrokeAggregateService aggregateService, Duration refreshInterval) {
+        this.aggregateService = aggregateService;
+        setStyle("-fx-background-color: #2B2B2B;");
+        getChildren().add(canvas);
+        canvas.widthProperty().bind(widthProperty());
+        canvas.widthProperty().addListener((obs, oldWidth, newWidth) -> draw());
+
+        refresher = new Timeline(new KeyFrame(refreshInterval, e -> refresh()));
+        refresher.setCycleCount(Animation.INDEFINITE);
+    }
+
+    public void start() {
+        refresh();
+        refresher.play();
+    }
+
+    public void stop() {
+        refresher.stop();
+    }
+
+    private void refresh() {
+        long sessions = aggregateService.getSessions();
+        if (sessions == renderedSessions) return;
+        renderedSessions = sessions;
+        rows = aggregateService.dwellRows();
+        double height = HEADER_HEIGHT + rows.size() * ROW_HEIGHT;
+        setPrefHeight(height);
+        canvas.setHeight(height);
+        draw();
+    }
+
+    private void draw() {
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        gc.setFill(BACKGROUND);
+        gc.fillRect(0, 0, canvas.getWidth(), canvas.getHeight());
+
+        int buckets = aggregateService.getDwellBuckets();
+        long bucketMillis = aggregateService.getDwellBucketMillis();
+        double cellWidth = (canvas.getWidth() - KEY_LABEL_WIDTH) / buckets;
+        if (cellWidth <= 0) return;
+
+        gc.setTextBaseline(VPos.CENTER);
+        gc.setTextAlign(TextAlignment.CENTER);
+        gc.setFill(Color.WHITE);
+        for (int b = 0; b < buckets; b++) {
+            String label = b == buckets - 1 ? (b * bucketMillis) + "+" : String.valueOf(b * bucketMillis);
+            gc.fillText(label, KEY_LABEL_WIDTH + (b + 0.5) * cellWidth, HEADER_HEIGHT / 2);
+        }
+
+        double y = HEADER_HEIGHT;
+        for (KeystrokeAggregateSnapshot.DwellRow row : rows) {
+            long[] counts = row.getCounts();
+            long peak = 0;
+            for (long count : counts) peak = Math.max(peak, count);
+
+            for (int b = 0; b < counts.length; b++) {
+                if (counts[b] == 0) continue;
+                gc.setFill(BACKGROUND.interpolate(HOT, (double) counts[b] / peak));
+                gc.fillRect(KEY_LABEL_WIDTH + b * cellWidth, y, cellWidth - 1, ROW_HEIGHT - 1);
+            }
+
+            gc.setTextAlign(TextAlignment.LEFT);
+            gc.setFill(KEY_LABEL);
+            gc.fillText(keyLabel(row.getKeyCode()), 10, y + ROW_HEIGHT / 2);
+            y += ROW_HEIGHT;
+        }
+    }
+
+    private static String keyLabel(int keyCode) {
+        if ((keyCode >= 48 && keyCode <= 57) || (keyCode >= 65 && keyCode <= 90)) {
+            return String.valueOf((char) keyCode);
+        }
+        if (keyCode >= 96 && keyCode <= 105) return "NUM " + (keyCode - 96);
+        if (keyCode >= 112 && keyCode <= 123) return "F" + (keyCode - 111);
+        switch (keyCode) {
+            case 8: return "BKSP";
+            case 13: return "ENTER";
+            case 16: return "SHIFT";
+            case 17: return "CTRL";
+            case 18: return "ALT";
+            case 19: return "PAUSE";
+            case 20: return "CAPS";
+            case 27: return "ESC";
+            case 32: return "SPACE";
+            case 33: return "PGUP";
+            case 34: return "PGDN";
+            case 35: return "END";
+            case 36: return "HOME";
+            case 37: return "LEFT";
+            case 38: return "UP";
+            case 39: return "RIGHT";
+            case 40: return "DOWN";
+            case 45: return "INS";
+            case 46: return "DEL";
+            case 91: return "META";
+            case 92: return "META R";
+            case 93: return "MENU";
+            case 106: return "NUM *";
+            case 107: return "NUM +";
+            case 108: return "NUM ,";
+            case 109: return "NUM -";
+            case 110: return "NUM .";
+            case 111: return "NUM /";
+            case 144: return "NUMLK";
+            case 145: return "SCRLK";
+            case 59: case 186: return ";";
+            case 61: case 187: return "=";
+            case 188: return ",";
+            case 173: case 189: return "-";
+            case 190: return ".";
+            case 191: return "/";
+            case 192: return "`";
+            case 219: return "[";
+            case 220: return "\\";
+            case 221: return "]";
+            case 222: return "'";
+            case 229: return "IME";
+            default: return "#" + keyCode;
+        }
+    }
+}
@@ -1,52 +1,86 @@
 package org.itnaf.scrollingbhs.javafx.visualization;
 
 import javafx.animation.AnimationTimer;
-import javafx.animation.KeyFrame;
-import javafx.animation.Timeline;
 import javafx.beans.property.ObjectProperty;
-import javafx.scene.control.Label;
-import javafx.scene.layout.Pane;
-import javafx.stage.Stage;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.geometry.Insets;
+import javafx.geometry.VPos;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.IndexedCell;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.control.skin.ListViewSkin;
+import javafx.scene.control.skin.VirtualFlow;
+import javafx.scene.layout.StackPane;
 import javafx.scene.paint.Color;
-import javafx.scene.shape.Line;
-import javafx.scene.shape.Rectangle;
-import javafx.util.Duration;
-import org.itnaf.scrollingbhs.model.KeystrokeEvent;
 import org.itnaf.scrollingbhs.model.KeystrokeTimingData;
 import org.itnaf.scrollingbhs.javafx.FxApplication;
 
-import java.util.Comparator;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
-import java.util.Set;
-import java.util.stream.Collectors;
 
-public class KeystrokeTimelinePane extends Pane {
+/**
+ * Scrollable history of the most recent sessions, newest first. Sessions are stored as
+ * {@link CompactSession}s and painted by recycled {@link ListView} cells, so only the visible
+ * sessions own a canvas no matter how much history is kept. The newest session is played back in
+ * real time: its bars appear on keydown and grow until keyup.
+ */
+public class KeystrokeTimelinePane extends StackPane {
 
     private static final double TOP_MARGIN = 30.0;
     private static final double FIELD_HEIGHT = 80.0;
+    private static final double BAR_HEIGHT = 20.0;
+    private static final double OVERLAP_OFFSET = 15.0;
+    private static final Color BACKGROUND = Color.web("#2B2B2B");
+    private static final Color PAST_LABEL = Color.web("#AAAAAA");
+    private static final Color DIVIDER = Color.web("#555555");
 
     private final long timelineDurationMillis;
+    private final int maxSessions;
     private final Map<Integer, Color> keyColors = new HashMap<>();
     private final Random random = new Random();
-    private Timeline sessionScheduler;
-    private AnimationTimer blockGrower;
 
-    // Session history: current is animating in the top half; previous is frozen in the bottom half.
-    private List<KeystrokeTimingData> currentSessionData = null;
-    private List<KeystrokeTimingData> previousSessionData = null;
-    private Stage stage;
+    private final ObservableList<CompactSession> sessions = FXCollections.observableArrayList();
+    private final ListView<CompactSession> historyView = new ListView<>(sessions);
+    private final HistorySkin historySkin = new HistorySkin(historyView);
+
+    // Playback state of the newest session, and the cell currently showing it (if any)
+    private CompactSession playingSession;
+    private SessionCell playingCell;
+    private long playbackStartNanos;
+    private long playbackElapsedMillis;
+    private final AnimationTimer playbackTimer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            playbackElapsedMillis = (now - playbackStartNanos) / 1_000_000;
+            CompactSession session = playingSession;
+            SessionCell cell = playingCell;
+            if (playbackElapsedMillis > session.durationMillis) {
+                playingSession = null;
+                playingCell = null;
+                stop();
+            }
+            if (cell != null && cell.getItem() == session) cell.draw();
+        }
+    };
 
-    public KeystrokeTimelinePane(long timelineDurationSeconds) {
+    public KeystrokeTimelinePane(long timelineDurationSeconds, int maxSessions) {
+        if (maxSessions < 1) {
+            throw new IllegalArgumentException("visualization.history.max-sessions must be positive, but was " + maxSessions);
+        }
         this.timelineDurationMillis = timelineDurationSeconds * 1000;
+        this.maxSessions = maxSessions;
         setStyle("-fx-background-color: #2B2B2B;");
-    }
 
-    public void setStage(Stage stage) {
-        this.stage = stage;
+        historyView.setStyle("-fx-background-color: #2B2B2B; -fx-control-inner-background: #2B2B2B;");
+        historyView.setFocusTraversable(false);
+        historyView.setCellFactory(listView -> new SessionCell());
+        historyView.setSkin(historySkin);
+        getChildren().add(historyView);
     }
 
     public void setKeystrokeData(ObjectProperty<List<KeystrokeTimingData>> sessionDataProperty) {
@@ -58,274 +92,147 @@ public class KeystrokeTimelinePane extends Pane {
     }
 
     private void onNewSession(List<KeystrokeTimingData> newSession) {
-        // Stop any running animation
-        if (sessionScheduler != null) sessionScheduler.stop();
-        if (blockGrower != null) blockGrower.stop();
-
-        // Rotate sessions: current → previous, new → current
-        previousSessionData = currentSessionData;
-        currentSessionData = newSession;
-
-        getChildren().clear();
-
-        double topHeight = sessionHeight(currentSessionData);
-        double bottomHeight = previousSessionData != null ? sessionHeight(previousSessionData) : 0;
-
-        resizeStage(topHeight + bottomHeight);
-
-        // Draw previous session fully below the top session
-        if (previousSessionData != null) {
-            addDivider(topHeight);
-            drawSessionStatic(previousSessionData, topHeight);
+        playbackTimer.stop();
+
+        // Follow new sessions only while the user is looking at the top; otherwise keep the
+        // session they are reading at the same pixel position as the new one is inserted above it.
+        VirtualFlow<?> flow = historySkin.flow();
+        IndexedCell<?> firstCell = flow.getFirstVisibleCell();
+        int firstVisible = firstCell != null ? firstCell.getIndex() : 0;
+        double firstOffset = firstCell != null ? firstCell.getLayoutY() : 0;
+
+        // Set before inserting so the cell that picks the session up registers itself as playingCell
+        CompactSession session = CompactSession.of(newSession);
+        playingSession = session;
+        playingCell = null;
+        sessions.add(0, session);
+        if (sessions.size() > maxSessions) {
+            sessions.remove(maxSessions, sessions.size());
+        }
+        if (firstVisible <= 0) {
+            historyView.scrollTo(0);
+        } else {
+            // Let the flow pick up the inserted row before re-anchoring on the shifted index
+            historyView.layout();
+            flow.scrollToTop(Math.min(firstVisible + 1, sessions.size() - 1));
+            flow.scrollPixels(-firstOffset);
         }
 
-        // Animate new session starting at Y=0
-        animateSession(currentSessionData, 0.0);
+        playbackStartNanos = System.nanoTime();
+        playbackElapsedMillis = 0;
+        playbackTimer.start();
     }
 
     /** Height in pixels required to display all fields of a session. */
-    private double sessionHeight(List<KeystrokeTimingData> sessionData) {
-        long uniqueFields = sessionData.stream()
-                .map(KeystrokeTimingData::getTargetText)
-                .distinct()
-                .count();
-        return TOP_MARGIN + uniqueFields * FIELD_HEIGHT;
+    private static double sessionHeight(CompactSession session) {
+        return TOP_MARGIN + session.fieldLabels.length * FIELD_HEIGHT;
     }
 
-    private void resizeStage(double totalPaneHeight) {
-        if (stage == null || stage.getScene() == null) return;
-        double decorations = stage.getHeight() - stage.getScene().getHeight();
-        stage.setHeight(totalPaneHeight + FxApplication.AXIS_HEIGHT + decorations);
-    }
-
-    // --- Divider line ---
-
-    private void addDivider(double y) {
-        double w = getWidth() > 0 ? getWidth() : 1200;
-        Line divider = new Line(0, y, w, y);
-        divider.setStroke(Color.web("#555555"));
-        divider.setStrokeWidth(1.5);
-        getChildren().add(divider);
+    private Color getColorForKey(int keyCode) {
+        return keyColors.computeIfAbsent(keyCode, k -> Color.hsb(random.nextDouble() * 360, 0.8, 0.95));
     }
 
-    // --- Static (fully drawn) rendering of a past session ---
-
-    private void drawSessionStatic(List<KeystrokeTimingData> sessionData, double yOffset) {
-        long sessionStartTime = sessionData.stream()
-                .flatMap(f -> f.getEvents().stream())
-                .min(Comparator.comparingLong(KeystrokeEvent::getTimestamp))
-                .map(KeystrokeEvent::getTimestamp).orElse(0L);
-        if (sessionStartTime == 0L) return;
-
-        double scaleX = (getWidth() - FxApplication.LABEL_WIDTH - 20) / timelineDurationMillis;
-
-        // Build ordered field Y positions
-        Map<String, Double> fieldYPositions = new HashMap<>();
-        double yPos = yOffset + TOP_MARGIN;
-        for (KeystrokeTimingData fieldData : sessionData) {
-            if (!fieldYPositions.containsKey(fieldData.getTargetText())) {
-                addFieldLabel(fieldData, yPos, Color.web("#AAAAAA"));
-                fieldYPositions.put(fieldData.getTargetText(), yPos);
-                yPos += FIELD_HEIGHT;
-            }
+    /**
+     * Paints one session onto a canvas that is reused as the cell scrolls through the history.
+     * Painting happens in the layout pass of a visible cell, never when VirtualFlow merely binds an
+     * index to measure it.
+     */
+    private class SessionCell extends ListCell<CompactSession> {
+        private final Canvas canvas = new Canvas();
+        private boolean dirty;
+
+        SessionCell() {
+            setPadding(Insets.EMPTY);
+            setStyle("-fx-background-color: #2B2B2B;");
         }
 
-        // Per-field start times (first non-TAB keydown)
-        Map<String, Long> fieldStartTimes = new HashMap<>();
-        for (KeystrokeTimingData fieldData : sessionData) {
-            fieldData.getEvents().stream()
-                    .filter(e -> e.getAction() == 0 && e.getKeyCode() != 9)
-                    .min(Comparator.comparingLong(KeystrokeEvent::getTimestamp))
-                    .ifPresent(e -> fieldStartTimes.put(fieldData.getTargetText(), e.getTimestamp()));
+        // The canvas is sized from the cell, so it must not feed back into the cell's width;
+        // otherwise cells cannot shrink when the vertical scrollbar appears.
+        @Override
+        protected double computeMinWidth(double height) {
+            return 0;
         }
 
-        // Draw each field's rectangles
-        for (KeystrokeTimingData fieldData : sessionData) {
-            double fieldBaseY = fieldYPositions.get(fieldData.getTargetText());
-            long fieldStartTime = fieldStartTimes.getOrDefault(fieldData.getTargetText(), sessionStartTime);
-
-            // Sort events by timestamp, skipping TAB
-            List<KeystrokeEvent> events = fieldData.getEvents().stream()
-                    .filter(e -> e.getKeyCode() != 9)
-                    .sorted(Comparator.comparingLong(KeystrokeEvent::getTimestamp))
-                    .collect(Collectors.toList());
-
-            // Replay event sequence to compute overlap levels and draw final rectangles.
-            // Mirrors the animation logic: activeBlocks keyed by keyCode, one per key at a time.
-            Map<Integer, Long> pressTimeMap = new HashMap<>();
-            Map<Integer, Double> pressXMap = new HashMap<>();
-            Map<Integer, Double> pressVOffsetMap = new HashMap<>();
-            Set<Integer> currentlyActive = new HashSet<>();
-
-            for (KeystrokeEvent e : events) {
-                if (e.getAction() == 0) { // keydown
-                    int overlapLevel = currentlyActive.size();
-                    double verticalOffset = overlapLevel * 15.0;
-                    double rectX = FxApplication.LABEL_WIDTH + ((e.getTimestamp() - fieldStartTime) * scaleX);
-
-                    pressTimeMap.put(e.getKeyCode(), e.getTimestamp());
-                    pressXMap.put(e.getKeyCode(), rectX);
-                    pressVOffsetMap.put(e.getKeyCode(), verticalOffset);
-                    currentlyActive.add(e.getKeyCode());
-
-                } else if (e.getAction() == 1) { // keyup
-                    currentlyActive.remove(e.getKeyCode());
-
-                    if (pressTimeMap.containsKey(e.getKeyCode())) {
-                        long press = pressTimeMap.remove(e.getKeyCode());
-                        double rectX = pressXMap.remove(e.getKeyCode());
-                        double vOffset = pressVOffsetMap.remove(e.getKeyCode());
-
-                        double width = Math.max(0, (e.getTimestamp() - press) * scaleX);
-                        Rectangle rect = new Rectangle(rectX, fieldBaseY - vOffset, width, 20);
-                        rect.setFill(getColorForKey(e.getKeyCode()));
-                        rect.setArcWidth(6);
-                        rect.setArcHeight(6);
-                        getChildren().add(rect);
-                    }
-                }
-            }
-
-            // Draw orphaned keydowns (no matching keyup) with zero width
-            for (Map.Entry<Integer, Long> entry : pressTimeMap.entrySet()) {
-                int keyCode = entry.getKey();
-                double rectX = pressXMap.get(keyCode);
-                double vOffset = pressVOffsetMap.get(keyCode);
-                Rectangle rect = new Rectangle(rectX, fieldBaseY - vOffset, 0, 20);
-                rect.setFill(getColorForKey(keyCode));
-                rect.setArcWidth(6);
-                rect.setArcHeight(6);
-                getChildren().add(rect);
-            }
+        @Override
+        protected double computePrefWidth(double height) {
+            return 0;
         }
-    }
-
-    // --- Animated rendering of the current session in the top half ---
-
-    private void animateSession(List<KeystrokeTimingData> sessionData, double yOffset) {
-        sessionScheduler = new Timeline();
-        final Map<Integer, GrowingBlock> activeBlocks = new HashMap<>();
 
-        long sessionStartTime = sessionData.stream()
-                .flatMap(field -> field.getEvents().stream())
-                .min(Comparator.comparingLong(KeystrokeEvent::getTimestamp))
-                .map(KeystrokeEvent::getTimestamp).orElse(0L);
-
-        if (sessionStartTime == 0L) return;
-
-        Map<String, Double> fieldYPositions = new HashMap<>();
-        double yPos = yOffset + TOP_MARGIN;
-        for (KeystrokeTimingData fieldData : sessionData) {
-            if (!fieldYPositions.containsKey(fieldData.getTargetText())) {
-                addFieldLabel(fieldData, yPos, Color.WHITE);
-                fieldYPositions.put(fieldData.getTargetText(), yPos);
-                yPos += FIELD_HEIGHT;
+        @Override
+        protected void updateItem(CompactSession session, boolean empty) {
+            super.updateItem(session, empty);
+            if (!empty && session != null && session == playingSession) {
+                playingCell = this;
+            } else if (playingCell == this) {
+                playingCell = null;
+            }
+            if (empty || session == null) {
+                setGraphic(null);
+                setPrefHeight(USE_COMPUTED_SIZE);
+            } else {
+                setPrefHeight(sessionHeight(session));
+                setGraphic(canvas);
+                dirty = true;
+                requestLayout();
             }
         }
 
-        final double scaleX = (getWidth() - FxApplication.LABEL_WIDTH - 20) / timelineDurationMillis;
-
-        Map<String, Long> fieldStartTimes = new HashMap<>();
-        for (KeystrokeTimingData fieldData : sessionData) {
-            fieldData.getEvents().stream()
-                    .filter(e -> e.getAction() == 0 && e.getKeyCode() != 9)
-                    .min(Comparator.comparingLong(KeystrokeEvent::getTimestamp))
-                    .ifPresent(e -> fieldStartTimes.put(fieldData.getTargetText(), e.getTimestamp()));
+        @Override
+        protected void layoutChildren() {
+            super.layoutChildren();
+            if (dirty || canvas.getWidth() != getWidth()) draw();
         }
 
-        final Set<Double> startedFields = new HashSet<>();
-
-        for (KeystrokeTimingData fieldData : sessionData) {
-            double fieldBaseY = fieldYPositions.get(fieldData.getTargetText());
-            long fieldStartTime = fieldStartTimes.getOrDefault(fieldData.getTargetText(), sessionStartTime);
-
-            for (KeystrokeEvent event : fieldData.getEvents()) {
-                if (event.getKeyCode() == 9) continue;
-
-                long eventTimeFromStart = event.getTimestamp() - sessionStartTime;
-
-                sessionScheduler.getKeyFrames().add(new KeyFrame(Duration.millis(eventTimeFromStart), e -> {
-                    if (event.getAction() == 0) {
-                        if (!startedFields.contains(fieldBaseY)) {
-                            startedFields.add(fieldBaseY);
-                            activeBlocks.values().stream()
-                                    .filter(b -> b.fieldBaseY != fieldBaseY)
-                                    .forEach(b -> b.isGrowing = false);
-                        }
-
-                        int overlapLevel = (int) activeBlocks.values().stream()
-                                .filter(b -> b.fieldBaseY == fieldBaseY).count();
-                        double verticalOffset = overlapLevel * 15.0;
-
-                        double rectX = FxApplication.LABEL_WIDTH + ((event.getTimestamp() - fieldStartTime) * scaleX);
-
-                        Rectangle rect = new Rectangle(rectX, fieldBaseY - verticalOffset, 0, 20);
-                        rect.setFill(getColorForKey(event.getKeyCode()));
-                        rect.setArcWidth(6);
-                        rect.setArcHeight(6);
-
-                        getChildren().add(rect);
-                        activeBlocks.put(event.getKeyCode(), new GrowingBlock(rect, event.getTimestamp(), fieldBaseY));
-
-                    } else if (event.getAction() == 1) {
-                        GrowingBlock block = activeBlocks.remove(event.getKeyCode());
-                        if (block != null) {
-                            block.isGrowing = false;
-                        }
-                    }
-                }));
+        void draw() {
+            CompactSession session = getItem();
+            if (session == null || isEmpty() || !isVisible()) return;
+            dirty = false;
+
+            double width = getWidth() > 0 ? getWidth() : historyView.getWidth();
+            double height = sessionHeight(session);
+            canvas.setWidth(width);
+            canvas.setHeight(height);
+
+            GraphicsContext gc = canvas.getGraphicsContext2D();
+            gc.setFill(BACKGROUND);
+            gc.fillRect(0, 0, width, height);
+
+            // The newest session keeps white labels; older ones are dimmed
+            gc.setFill(getIndex() == 0 ? Color.WHITE : PAST_LABEL);
+            gc.setTextBaseline(VPos.TOP);
+            for (int field = 0; field < session.fieldLabels.length; field++) {
+                gc.fillText(session.fieldLabels[field], 10, TOP_MARGIN + field * FIELD_HEIGHT - 10);
             }
-        }
 
-        blockGrower = new AnimationTimer() {
-            @Override
-            public void handle(long now) {
-                long currentTime = sessionStartTime + (long) sessionScheduler.getCurrentTime().toMillis();
-                for (GrowingBlock block : activeBlocks.values()) {
-                    if (block.isGrowing) {
-                        long dwellTime = currentTime - block.pressTime;
-                        double newWidth = dwellTime * scaleX;
-                        if (newWidth > 0) {
-                            block.rect.setWidth(newWidth);
-                        }
-                    }
-                }
+            long elapsed = session == playingSession ? playbackElapsedMillis : Long.MAX_VALUE;
+            double scaleX = FxApplication.TIMELINE_WIDTH / timelineDurationMillis;
+            for (int i = 0; i < session.barCount(); i++) {
+                long sinceBarStart = elapsed - session.barSessionOffset[i];
+                if (sinceBarStart < 0) continue;
+
+                double x = FxApplication.LABEL_WIDTH + session.barFieldOffset[i] * scaleX;
+                double y = TOP_MARGIN + session.barField[i] * FIELD_HEIGHT
+                        - session.barOverlapLevel[i] * OVERLAP_OFFSET;
+                double barWidth = Math.min(sinceBarStart, session.barDuration[i]) * scaleX;
+                gc.setFill(getColorForKey(session.barKeyCode[i]));
+                gc.fillRoundRect(x, y, barWidth, BAR_HEIGHT, 6, 6);
             }
-        };
-
-        sessionScheduler.setOnFinished(e -> {
-            activeBlocks.values().forEach(block -> block.isGrowing = false);
-            activeBlocks.clear();
-            blockGrower.stop();
-        });
-
-        sessionScheduler.play();
-        blockGrower.start();
-    }
-
-    private void addFieldLabel(KeystrokeTimingData fieldData, double yPos, Color color) {
-        String text = fieldData.getTargetText().replace("#", " ");
-        Label label = new Label(text);
-        label.setTextFill(color);
-        label.setLayoutX(10);
-        label.setLayoutY(yPos - 10);
-        getChildren().add(label);
-    }
 
-    private Color getColorForKey(int keyCode) {
-        return keyColors.computeIfAbsent(keyCode, k -> Color.hsb(random.nextDouble() * 360, 0.8, 0.95));
+            // Divider below each session
+            gc.setStroke(DIVIDER);
+            gc.setLineWidth(1.5);
+            gc.strokeLine(0, height - 0.75, width, height - 0.75);
+        }
     }
 
-    private static class GrowingBlock {
-        final Rectangle rect;
-        final long pressTime;
-        final double fieldBaseY;
-        boolean isGrowing = true;
+    /** Default list skin that exposes its {@link VirtualFlow} for scroll anchoring. */
+    private static class HistorySkin extends ListViewSkin<CompactSession> {
+        HistorySkin(ListView<CompactSession> listView) {
+            super(listView);
+        }
 
-        GrowingBlock(Rectangle rect, long pressTime, double fieldBaseY) {
-            this.rect = rect;
-            this.pressTime = pressTime;
-            this.fieldBaseY = fieldBaseY;
+        VirtualFlow<?> flow() {
+            return getVirtualFlow();
         }
     }
 }
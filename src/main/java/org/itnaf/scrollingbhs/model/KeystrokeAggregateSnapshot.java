@@ -0,0 +1,89 @@
+package org.itnaf.scrollingbhs.model;
+
+import java.util.List;
+
+/**
+ * Point-in-time copy of the cross-session keystroke histograms. Only rows with at least one
+ * recorded sample are included. Bucket {@code i} covers {@code [i * bucketMillis, (i + 1) * bucketMillis)};
+ * the last bucket also absorbs every longer interval.
+ */
+public class KeystrokeAggregateSnapshot {
+    private final long sessions;
+    private final long dwellBucketMillis;
+    private final long flightBucketMillis;
+    private final List<DwellRow> dwell;
+    private final List<FlightRow> flight;
+
+    public KeystrokeAggregateSnapshot(long sessions, long dwellBucketMillis, long flightBucketMillis,
+                                      List<DwellRow> dwell, List<FlightRow> flight) {
+        this.sessions = sessions;
+        this.dwellBucketMillis = dwellBucketMillis;
+        this.flightBucketMillis = flightBucketMillis;
+        this.dwell = dwell;
+        this.flight = flight;
+    }
+
+    public long getSessions() {
+        return sessions;
+    }
+
+    public long getDwellBucketMillis() {
+        return dwellBucketMillis;
+    }
+
+    public long getFlightBucketMillis() {
+        return flightBucketMillis;
+    }
+
+    public List<DwellRow> getDwell() {
+        return dwell;
+    }
+
+    public List<FlightRow> getFlight() {
+        return flight;
+    }
+
+    /** Dwell-time histogram for a single key. */
+    public static class DwellRow {
+        private final int keyCode;
+        private final long[] counts;
+
+        public DwellRow(int keyCode, long[] counts) {
+            this.keyCode = keyCode;
+            this.counts = counts;
+        }
+
+        public int getKeyCode() {
+            return keyCode;
+        }
+
+        public long[] getCounts() {
+            return counts;
+        }
+    }
+
+    /** Flight-time histogram for a key release followed by the next key press in the same field. */
+    public static class FlightRow {
+        private final int fromKeyCode;
+        private final int toKeyCode;
+        private final long[] counts;
+
+        public FlightRow(int fromKeyCode, int toKeyCode, long[] counts) {
+            this.fromKeyCode = fromKeyCode;
+            this.toKeyCode = toKeyCode;
+            this.counts = counts;
+        }
+
+        public int getFromKeyCode() {
+            return fromKeyCode;
+        }
+
+        public int getToKeyCode() {
+            return toKeyCode;
+        }
+
+        public long[] getCounts() {
+            return counts;
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package org.itnaf.scrollingbhs.service;
+
+import org.itnaf.scrollingbhs.model.KeystrokeAggregateSnapshot;
+import org.itnaf.scrollingbhs.model.KeystrokeEvent;
+import org.itnaf.scrollingbhs.model.KeystrokeTimingData;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+@Service
+public class KeystrokeAggregateService {
+
+    private static final int TAB_KEY_CODE = 9;
+    private static final long NOT_PRESSED = Long.MIN_VALUE;
+    private static final int NO_KEY = -1;
+    private static final int MAX_STRIPES = 8;
+
+    /** Dwell rows are indexed directly by key code; key codes at or above this are ignored. */
+    private static final int KEY_CODES = 256;
+
+    // Key codes that take part in flight pairs, in pair-grid order. Compacting them keeps the
+    // key-pair grid small enough to stripe like the dwell grid.
+    private static final int[] PAIR_KEY_CODES = typeableKeyCodes();
+    private static final int PAIR_KEYS = PAIR_KEY_CODES.length;
+    // Pair-grid row of every key code, or NO_KEY.
+    private static final int[] PAIR_ROWS = new int[KEY_CODES];
+
+    static {
+        Arrays.fill(PAIR_ROWS, NO_KEY);
+        for (int row = 0; row < PAIR_KEYS; row++) {
+            PAIR_ROWS[PAIR_KEY_CODES[row]] = row;
+        }
+    }
+
+    // Per-thread scratch, so recording a session does not allocate.
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private final long dwellBucketMillis;
+    private final int dwellBuckets;
+    private final long flightBucketMillis;
+    private final int flightBuckets;
+
+    // keyCode × dwell bucket and (fromKey, toKey) × flight bucket, both striped per writer thread.
+    private final StripedHistogram dwellHistogram;
+    private final StripedHistogram flightHistogram;
+    private final LongAdder sessions = new LongAdder();
+
+    public KeystrokeAggregateService(
+            @Value("${visualization.aggregate.dwell-bucket-millis:20}") long dwellBucketMillis,
+            @Value("${visualization.aggregate.dwell-buckets:16}") int dwellBuckets,
+            @Value("${visualization.aggregate.flight-bucket-millis:50}") long flightBucketMillis,
+            @Value("${visualization.aggregate.flight-buckets:12}") int flightBuckets) {
+        requirePositive("visualization.aggregate.dwell-bucket-millis", dwellBucketMillis);
+        requirePositive("visualization.aggregate.dwell-buckets", dwellBuckets);
+        requirePositive("visualization.aggregate.flight-bucket-millis", flightBucketMillis);
+        requirePositive("visualization.aggregate.flight-buckets", flightBuckets);
+        this.dwellBucketMillis = dwellBucketMillis;
+        this.dwellBuckets = dwellBuckets;
+        this.flightBucketMillis = flightBucketMillis;
+        this.flightBuckets = flightBuckets;
+        int stripes = Math.min(Runtime.getRuntime().availableProcessors(), MAX_STRIPES);
+        this.dwellHistogram = new StripedHistogram(KEY_CODES, dwellBuckets, stripes);
+        this.flightHistogram = new StripedHistogram(PAIR_KEYS * PAIR_KEYS, flightBuckets, stripes);
+    }
+
+    private static void requirePositive(String property, long value) {
+        if (value <= 0) {
+            throw new IllegalArgumentException(property + " must be positive, but was " + value);
+        }
+    }
+
+    /**
+     * Adds every keystroke of a session to the aggregate histograms. Runs on the calling (web server)
+     * thread in O(events) without locking or allocating. As in the timeline view, each field's events
+     * are replayed in timestamp order and TAB is skipped. Only a field whose events arrive out of
+     * order is copied and sorted first.
+     * Dwell is keyup minus the matching keydown, recorded for every key code below 256. Flight pairs
+     * each keydown with the next keydown in the same field and is the next keydown minus the first
+     * key's keyup; it is recorded once both events have been seen. Overlapping keystrokes produce
+     * negative flights, counted in the first bucket. A keydown outside the typeable set breaks the
+     * chain, so no pair is recorded across it.
+     *
+     * @param sessionData A list of KeystrokeTimingData, where each item represents a typed field.
+     */
+    public void record(List<KeystrokeTimingData> sessionData) {
+        Scratch scratch = SCRATCH.get();
+        long[] pressTimes = scratch.pressTimes;
+        int[] nextKeys = scratch.nextKeys;
+        long[] nextPressTimes = scratch.nextPressTimes;
+
+        for (int f = 0; f < sessionData.size(); f++) {
+            List<KeystrokeEvent> events = inTimestampOrder(sessionData.get(f).getEvents());
+            Arrays.fill(pressTimes, NOT_PRESSED);
+            Arrays.fill(nextKeys, NO_KEY);
+            // The previous keydown's key, and its release time once it has been released
+            int previousKey = NO_KEY;
+            long previousReleaseTime = NOT_PRESSED;
+
+            for (int i = 0; i < events.size(); i++) {
+                KeystrokeEvent event = events.get(i);
+                int keyCode = event.getKeyCode();
+                if (keyCode == TAB_KEY_CODE || keyCode < 0 || keyCode >= KEY_CODES) continue;
+                int key = PAIR_ROWS[keyCode];
+
+                if (event.getAction() == 0) { // keydown; auto-repeats keep the first press time
+                    if (pressTimes[keyCode] != NOT_PRESSED) continue;
+                    pressTimes[keyCode] = event.getTimestamp();
+                    if (key != NO_KEY && previousKey != NO_KEY) {
+                        if (previousReleaseTime != NOT_PRESSED) {
+                            recordFlight(previousKey, key, event.getTimestamp() - previousReleaseTime);
+                        } else {
+                            // Still held: the flight is recorded, negative, when it is released
+                            nextKeys[previousKey] = key;
+                            nextPressTimes[previousKey] = event.getTimestamp();
+                        }
+                    }
+                    previousKey = key; // NO_KEY outside the pair set, which breaks the chain
+                    previousReleaseTime = NOT_PRESSED;
+                } else if (event.getAction() == 1) { // keyup
+                    long pressTime = pressTimes[keyCode];
+                    if (pressTime == NOT_PRESSED) continue;
+                    pressTimes[keyCode] = NOT_PRESSED;
+                    dwellHistogram.increment(keyCode, bucket(event.getTimestamp() - pressTime, dwellBucketMillis, dwellBuckets));
+                    if (key == NO_KEY) continue;
+
+                    if (nextKeys[key] != NO_KEY) {
+                        recordFlight(key, nextKeys[key], nextPressTimes[key] - event.getTimestamp());
+                        nextKeys[key] = NO_KEY;
+                    }
+                    if (key == previousKey) {
+                        previousReleaseTime = event.getTimestamp();
+                    }
+                }
+            }
+        }
+        sessions.increment();
+    }
+
+    private static List<KeystrokeEvent> inTimestampOrder(List<KeystrokeEvent> events) {
+        for (int i = 1; i < events.size(); i++) {
+            if (events.get(i).getTimestamp() < events.get(i - 1).getTimestamp()) {
+                List<KeystrokeEvent> sorted = new ArrayList<>(events);
+                sorted.sort(Comparator.comparingLong(KeystrokeEvent::getTimestamp));
+                return sorted;
+            }
+        }
+        return events;
+    }
+
+    private void recordFlight(int fromKey, int toKey, long flightMillis) {
+        flightHistogram.increment(fromKey * PAIR_KEYS + toKey, bucket(flightMillis, flightBucketMillis, flightBuckets));
+    }
+
+    private static int bucket(long millis, long bucketMillis, int buckets) {
+        if (millis <= 0) return 0;
+        return (int) Math.min(millis / bucketMillis, buckets - 1);
+    }
+
+    /** Returns the dwell histogram rows with at least one sample. Does not block writers. */
+    public List<KeystrokeAggregateSnapshot.DwellRow> dwellRows() {
+        long[] counts = dwellHistogram.snapshot();
+        List<KeystrokeAggregateSnapshot.DwellRow> rows = new ArrayList<>();
+        for (int keyCode = 0; keyCode < KEY_CODES; keyCode++) {
+            long[] row = nonEmptyRow(counts, keyCode, dwellBuckets);
+            if (row != null) rows.add(new KeystrokeAggregateSnapshot.DwellRow(keyCode, row));
+        }
+        return rows;
+    }
+
+    /** Returns the flight histogram rows with at least one sample. Does not block writers. */
+    public List<KeystrokeAggregateSnapshot.FlightRow> flightRows() {
+        long[] counts = flightHistogram.snapshot();
+        List<KeystrokeAggregateSnapshot.FlightRow> rows = new ArrayList<>();
+        for (int pair = 0; pair < PAIR_KEYS * PAIR_KEYS; pair++) {
+            long[] row = nonEmptyRow(counts, pair, flightBuckets);
+            if (row != null) {
+                rows.add(new KeystrokeAggregateSnapshot.FlightRow(
+                        PAIR_KEY_CODES[pair / PAIR_KEYS], PAIR_KEY_CODES[pair % PAIR_KEYS], row));
+            }
+        }
+        return rows;
+    }
+
+    /** Returns a copy of both histograms. Concurrent ingestion may be partially reflected. */
+    public KeystrokeAggregateSnapshot snapshot() {
+        return new KeystrokeAggregateSnapshot(sessions.sum(), dwellBucketMillis, flightBucketMillis,
+                dwellRows(), flightRows());
+    }
+
+    /**
+     * Editing and modifier keys, space, arrows, digits, letters, numpad and punctuation, including
+     * Firefox's codes for {@code ; = -}.
+     */
+    private static int[] typeableKeyCodes() {
+        int[] codes = new int[79];
+        int n = 0;
+        for (int code : new int[]{8, 13, 16, 17, 18, 20, 27, 32, 37, 38, 39, 40, 46, 59, 61, 173}) codes[n++] = code;
+        for (int code = 48; code <= 57; code++) codes[n++] = code;
+        for (int code = 65; code <= 90; code++) codes[n++] = code;
+        for (int code = 96; code <= 111; code++) codes[n++] = code;
+        for (int code = 186; code <= 192; code++) codes[n++] = code;
+        for (int code = 219; code <= 222; code++) codes[n++] = code;
+        return codes;
+    }
+
+    private static long[] nonEmptyRow(long[] counts, int row, int buckets) {
+        int from = row * buckets;
+        for (int i = from; i < from + buckets; i++) {
+            if (counts[i] != 0) return Arrays.copyOfRange(counts, from, from + buckets);
+        }
+        return null;
+    }
+
+    public long getDwellBucketMillis() {
+        return dwellBucketMillis;
+    }
+
+    public int getDwellBuckets() {
+        return dwellBuckets;
+    }
+
+    public long getSessions() {
+        return sessions.sum();
+    }
+
+    private static class Scratch {
+        final long[] pressTimes = new long[KEY_CODES];
+        // Per pair-grid row: the key pressed next while it was still held, and when
+        final int[] nextKeys = new int[PAIR_KEYS];
+        final long[] nextPressTimes = new long[PAIR_KEYS];
+    }
+}
@@ -4,6 +4,7 @@ import javafx.application.Platform;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.SimpleObjectProperty;
 import org.itnaf.scrollingbhs.model.KeystrokeTimingData;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -15,14 +16,23 @@ public class KeystrokeDataService {
     // The UI will observe this property for changes.
     private final ObjectProperty<List<KeystrokeTimingData>> sessionDataProperty = new SimpleObjectProperty<>();
 
+    private final KeystrokeAggregateService keystrokeAggregateService;
+
+    @Autowired
+    public KeystrokeDataService(KeystrokeAggregateService keystrokeAggregateService) {
+        this.keystrokeAggregateService = keystrokeAggregateService;
+    }
+
     /**
      * Sets the keystroke data for a new session. This will trigger the UI to update.
      * This method is called from a background thread (the web server thread),
      * so it uses Platform.runLater to ensure the property is updated on the FX Application Thread.
+     * The session is added to the cross-session aggregate on the calling thread first.
      *
      * @param sessionData A list of KeystrokeTimingData, where each item represents a typed field.
      */
     public void setKeystrokeSession(List<KeystrokeTimingData> sessionData) {
+        keystrokeAggregateService.record(sessionData);
         Platform.runLater(() -> sessionDataProperty.set(sessionData));
     }
 
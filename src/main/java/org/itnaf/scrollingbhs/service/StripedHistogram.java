@@ -0,0 +1,47 @@
+package org.itnaf.scrollingbhs.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-size rows × buckets grid of counters that can be incremented concurrently without locks.
+ * Each stripe is a full copy of the grid stored contiguously in one {@link AtomicLongArray}; a writer
+ * picks its stripe from its thread id, so concurrent ingestion threads rarely touch the same cell.
+ * Readers sum the stripes and never block writers.
+ */
+class StripedHistogram {
+
+    private final int buckets;
+    private final int cellsPerStripe;
+    private final int stripeMask;
+    private final AtomicLongArray cells;
+
+    /**
+     * @param rows    Number of rows (e.g. key codes).
+     * @param buckets Number of buckets per row.
+     * @param stripes Requested number of stripes; rounded up to a power of two.
+     */
+    StripedHistogram(int rows, int buckets, int stripes) {
+        this.buckets = buckets;
+        this.cellsPerStripe = rows * buckets;
+        int stripeCount = stripes <= 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        this.stripeMask = stripeCount - 1;
+        this.cells = new AtomicLongArray(cellsPerStripe * stripeCount);
+    }
+
+    /** Increments one cell. Allocation-free; the caller guarantees row and bucket are in range. */
+    void increment(int row, int bucket) {
+        int stripe = (int) Thread.currentThread().getId() & stripeMask;
+        cells.getAndIncrement(stripe * cellsPerStripe + row * buckets + bucket);
+    }
+
+    /** Sums every stripe into a flat row-major array of length {@code rows * buckets}. */
+    long[] snapshot() {
+        long[] totals = new long[cellsPerStripe];
+        for (int base = 0; base < cells.length(); base += cellsPerStripe) {
+            for (int i = 0; i < cellsPerStripe; i++) {
+                totals[i] += cells.get(base + i);
+            }
+        }
+        return totals;
+    }
+}